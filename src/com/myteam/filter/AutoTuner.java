@@ -0,0 +1,217 @@
+// File: src/com/myteam/filter/AutoTuner.java
+package com.myteam.filter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Per-machine cost model behind the {@code auto*} methods of {@link ImageFilter}.
+ * On first use it loads {@code ~/.filterapp/autotune.properties} (override with
+ * {@code -Dfilterapp.autotune.profile=...}); if that is missing, was written on a
+ * machine with a different core count, or {@code -Dfilterapp.autotune.recalibrate=true}
+ * is set, it runs a short calibration and persists the result.
+ */
+public class AutoTuner {
+    /**
+     * What one call should do: run sequentially, or in parallel as {@code threads}
+     * bands of {@code chunkRows} rows, so at most {@code threads} workers pick it up.
+     */
+    public static class Plan {
+        public final boolean parallel;
+        public final int threads;
+        public final int chunkRows;
+        public Plan(boolean parallel, int threads, int chunkRows) {
+            this.parallel  = parallel;
+            this.threads   = threads;
+            this.chunkRows = chunkRows;
+        }
+        @Override public String toString() {
+            return parallel ? "parallel(" + threads + " threads, " + chunkRows + " rows/task)" : "sequential";
+        }
+    }
+
+    private static volatile AutoTuner shared;
+
+    // cost model, all in nanoseconds
+    private final int    cores;
+    private final double grayNsPerPixel;
+    private final double edgeNsPerPixel;
+    private final double gaussNsPerTap;     // per pixel per 1-D tap (separable: 2k taps)
+    private final double medianNsPerPixel;  // independent of k
+    private final double forkJoinNs;        // fixed cost of one parallel pass
+
+    public AutoTuner(int cores, double grayNsPerPixel, double edgeNsPerPixel,
+                     double gaussNsPerTap, double medianNsPerPixel, double forkJoinNs) {
+        this.cores            = cores;
+        this.grayNsPerPixel   = grayNsPerPixel;
+        this.edgeNsPerPixel   = edgeNsPerPixel;
+        this.gaussNsPerTap    = gaussNsPerTap;
+        this.medianNsPerPixel = medianNsPerPixel;
+        this.forkJoinNs       = forkJoinNs;
+    }
+
+    /** The machine profile, loaded or calibrated once per JVM. */
+    public static AutoTuner shared() {
+        AutoTuner t = shared;
+        if (t == null) {
+            synchronized (AutoTuner.class) {
+                t = shared;
+                if (t == null) shared = t = loadOrCalibrate(profileFile());
+            }
+        }
+        return t;
+    }
+
+    static File profileFile() {
+        String p = System.getProperty("filterapp.autotune.profile");
+        if (p != null) return new File(p);
+        return new File(System.getProperty("user.home"), ".filterapp/autotune.properties");
+    }
+
+    public static AutoTuner loadOrCalibrate(File profile) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (!Boolean.getBoolean("filterapp.autotune.recalibrate") && profile.isFile()) {
+            try {
+                AutoTuner t = load(profile);
+                if (t.cores == cores) return t;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Ignoring unreadable tuning profile " + profile + ": " + e);
+            }
+        }
+        AutoTuner t = calibrate();
+        try {
+            t.save(profile);
+        } catch (IOException e) {
+            System.err.println("Could not persist tuning profile " + profile + ": " + e);
+        }
+        return t;
+    }
+
+    // ── Decision ─────────────────────────────────────────────────────
+    /** Chooses sequential vs parallel, thread count and grain for one call. */
+    public Plan plan(ImageFilter.FilterType type, int w, int h, int k, int maxThreads) {
+        double rowNs  = w * costPerPixel(type, k);
+        double workNs = rowNs * h;
+        // a parallel pass only pays off once each worker gets more than the fork/join cost
+        int threads = (int) Math.min(maxThreads, Math.min(h, workNs / forkJoinNs));
+        if (threads < 2) return new Plan(false, 1, h);
+
+        // one band per thread: the band count is what caps the pass at `threads` workers
+        int chunkRows = (h + threads - 1) / threads;
+        return new Plan(true, (h + chunkRows - 1) / chunkRows, chunkRows);
+    }
+
+    double costPerPixel(ImageFilter.FilterType type, int k) {
+        switch (type) {
+            case GAUSSIAN:  return gaussNsPerTap * 2 * k;
+            case GRAYSCALE: return grayNsPerPixel;
+            case EDGE:      return edgeNsPerPixel;
+            case MEDIAN:    return medianNsPerPixel;
+            default: throw new AssertionError();
+        }
+    }
+
+    /**
+     * This profile with the fork/join cost re-measured on {@code ctx}. The
+     * kernel costs do not depend on the pool, but a private pool pays a
+     * submit/join hand-off per pass that the common pool does not.
+     */
+    public AutoTuner on(ExecutionContext ctx) {
+        if (ctx.pool() == ForkJoinPool.commonPool()) return this;
+        return new AutoTuner(cores, grayNsPerPixel, edgeNsPerPixel, gaussNsPerTap, medianNsPerPixel,
+                             forkJoinNs(new ImageFilter(ctx)));
+    }
+
+    // ── Calibration ──────────────────────────────────────────────────
+    /** Calibrates on the common pool; see {@link #calibrate(ExecutionContext)}. */
+    public static AutoTuner calibrate() {
+        return calibrate(ExecutionContext.common());
+    }
+
+    /** Times the sequential kernels and an almost-empty parallel pass on {@code ctx}, on synthetic input. */
+    public static AutoTuner calibrate(ExecutionContext ctx) {
+        ImageFilter f = new ImageFilter(ctx);
+        BufferedImage img = noise(256, 256);
+        double px = 256 * 256;
+
+        double gray  = bestOf(() -> f.sequentialGrayscale(img)) / px;
+        double edge  = bestOf(() -> f.sequentialEdge(img)) / px;
+        double gauss = bestOf(() -> f.sequentialGaussian(img, 5)) / (px * 10);
+        double median = bestOf(() -> f.sequentialMedian(img, 5)) / px;
+
+        return new AutoTuner(Runtime.getRuntime().availableProcessors(), gray, edge, gauss, median, forkJoinNs(f));
+    }
+
+    /** The parallel pass on an 8x8 image is nearly all overhead. */
+    private static double forkJoinNs(ImageFilter f) {
+        BufferedImage tiny = noise(8, 8);
+        double parTiny = bestOf(() -> f.parallelGrayscale(tiny));
+        double seqTiny = bestOf(() -> f.sequentialGrayscale(tiny));
+        return Math.max(1_000, parTiny - seqTiny);
+    }
+
+    private static double bestOf(Runnable r) {
+        for (int i = 0; i < 3; i++) r.run();      // warm-up / JIT
+        long[] t = new long[7];
+        for (int i = 0; i < t.length; i++) {
+            long t0 = System.nanoTime();
+            r.run();
+            t[i] = System.nanoTime() - t0;
+        }
+        Arrays.sort(t);
+        return t[t.length / 2];
+    }
+
+    private static BufferedImage noise(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Random rnd = new Random(42);
+        int[] px = new int[w * h];
+        for (int i = 0; i < px.length; i++) px[i] = rnd.nextInt();
+        img.setRGB(0, 0, w, h, px, 0, w);
+        return img;
+    }
+
+    // ── Persistence ──────────────────────────────────────────────────
+    public static AutoTuner load(File file) throws IOException {
+        Properties p = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            p.load(in);
+        }
+        return new AutoTuner(
+            Integer.parseInt(p.getProperty("cores")),
+            Double.parseDouble(p.getProperty("grayNsPerPixel")),
+            Double.parseDouble(p.getProperty("edgeNsPerPixel")),
+            Double.parseDouble(p.getProperty("gaussNsPerSepTap")),
+            Double.parseDouble(p.getProperty("medianNsPerPixel")),
+            Double.parseDouble(p.getProperty("forkJoinNs")));
+    }
+
+    public void save(File file) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("cores",            Integer.toString(cores));
+        p.setProperty("grayNsPerPixel",   Double.toString(grayNsPerPixel));
+        p.setProperty("edgeNsPerPixel",   Double.toString(edgeNsPerPixel));
+        p.setProperty("gaussNsPerSepTap", Double.toString(gaussNsPerTap));
+        p.setProperty("medianNsPerPixel", Double.toString(medianNsPerPixel));
+        p.setProperty("forkJoinNs",       Double.toString(forkJoinNs));
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) dir.mkdirs();
+        try (OutputStream out = new FileOutputStream(file)) {
+            p.store(out, "FilterApp auto-tuning profile");
+        }
+    }
+
+    @Override public String toString() {
+        return String.format("AutoTuner[cores=%d gray=%.2fns/px edge=%.2fns/px gauss=%.3fns/tap median=%.2fns/px forkJoin=%.0fns]",
+            cores, grayNsPerPixel, edgeNsPerPixel, gaussNsPerTap, medianNsPerPixel, forkJoinNs);
+    }
+}
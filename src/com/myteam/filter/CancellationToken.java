@@ -0,0 +1,71 @@
+// File: src/com/myteam/filter/CancellationToken.java
+package com.myteam.filter;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative stop signal for a job, optionally with a deadline.
+ * Filters poll it through {@link ExecutionContext#checkpoint()} once per row
+ * (or FFT tile) and the video loop once per frame, so a cancelled or
+ * overrunning job stops using its cores after at most one row of work per
+ * worker. A child token stops when its parent does or when its own budget
+ * runs out, e.g. a per-frame budget inside a whole-run token.
+ */
+public final class CancellationToken {
+    private static final CancellationToken NONE = new CancellationToken(null, false, 0);
+
+    private final CancellationToken parent;
+    private final boolean hasDeadline;
+    private final long deadline;        // System.nanoTime() value
+    private volatile String reason;     // null while live
+
+    private CancellationToken(CancellationToken parent, boolean hasDeadline, long deadline) {
+        this.parent      = parent;
+        this.hasDeadline = hasDeadline;
+        this.deadline    = deadline;
+    }
+
+    /** Token that is never cancelled; the default of every {@link ExecutionContext}. */
+    public static CancellationToken none() { return NONE; }
+
+    /** Token that stops only when {@link #cancel()} is called. */
+    public static CancellationToken create() {
+        return new CancellationToken(null, false, 0);
+    }
+
+    /** Token that also stops once {@code budget} has elapsed from now. */
+    public static CancellationToken withBudget(Duration budget) {
+        return new CancellationToken(null, true, System.nanoTime() + budget.toNanos());
+    }
+
+    /** Token that stops with this one or after {@code budget}, whichever comes first. */
+    public CancellationToken child(Duration budget) {
+        long d = System.nanoTime() + budget.toNanos();
+        if (hasDeadline && deadline - d < 0) d = deadline;
+        return new CancellationToken(this == NONE ? null : this, true, d);
+    }
+
+    public void cancel() {
+        if (this == NONE) throw new UnsupportedOperationException("The 'none' token cannot be cancelled");
+        if (reason == null) reason = "Cancelled";
+    }
+
+    public boolean isCancelled() {
+        if (reason != null) return true;
+        if (hasDeadline && System.nanoTime() - deadline >= 0) {
+            reason = "Deadline exceeded";
+            return true;
+        }
+        if (parent != null && parent.isCancelled()) {
+            reason = parent.reason;
+            return true;
+        }
+        return false;
+    }
+
+    /** Throws {@link CancellationException} once cancelled or past the deadline. */
+    public void checkpoint() {
+        if (isCancelled()) throw new CancellationException(reason);
+    }
+}
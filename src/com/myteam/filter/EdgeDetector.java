@@ -0,0 +1,138 @@
+// File: src/com/myteam/filter/EdgeDetector.java
+package com.myteam.filter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Sobel edge detection on a precomputed luminance plane.
+ * The RGB average is taken once per pixel into a byte plane, the 3x3 Sobel
+ * taps run in integer arithmetic on that plane, and the gradient magnitude
+ * comes from a square-root table instead of {@code Math.hypot}.
+ */
+public class EdgeDetector {
+    /** EXACT = floor(sqrt(gx²+gy²)), same as the old hypot path; L1 = |gx|+|gy|, cheaper and slightly brighter. */
+    public enum Magnitude { EXACT, L1 }
+
+    // floor(sqrt(i)) for every i below 255², anything at or above clamps to 255
+    private static final int SAT = 255 * 255;
+    private static final byte[] SQRT = new byte[SAT];
+    static {
+        for (int i = 0, s = 0; i < SAT; i++) {
+            while ((s + 1) * (s + 1) <= i) s++;
+            SQRT[i] = (byte) s;
+        }
+    }
+
+    private final ExecutionContext ctx;
+
+    public EdgeDetector() {
+        this(ExecutionContext.common());
+    }
+
+    public EdgeDetector(ExecutionContext ctx) {
+        this.ctx = ctx;
+    }
+
+    // ── Luminance plane ──────────────────────────────────────────────
+    /** (R+G+B)/3 of every pixel, row-major, one byte each. */
+    public byte[] luminance(BufferedImage in) {
+        byte[] lum = new byte[in.getWidth() * in.getHeight()];
+        luminance(in, lum);
+        return lum;
+    }
+
+    /** Fills {@code lum} (w*h bytes, e.g. a TYPE_BYTE_GRAY raster) with the luminance plane. */
+    public void luminance(BufferedImage in, byte[] lum) {
+        int w = in.getWidth(), h = in.getHeight();
+        int[] rgb = in.getRGB(0, 0, w, h, null, 0, w);
+        for (int y = 0; y < h; y++) {
+            ctx.checkpoint();
+            lumRow(rgb, lum, y * w, w);
+        }
+    }
+
+    public void parallelLuminance(BufferedImage in, byte[] lum, int chunkRows) {
+        int w = in.getWidth(), h = in.getHeight();
+        int[] rgb = in.getRGB(0, 0, w, h, null, 0, w);
+        ctx.parallelRows(h, chunkRows, y -> lumRow(rgb, lum, y * w, w));
+    }
+
+    private static void lumRow(int[] rgb, byte[] lum, int off, int w) {
+        for (int i = off, end = off + w; i < end; i++) {
+            int p = rgb[i];
+            lum[i] = (byte) ((((p >> 16) & 0xFF) + ((p >> 8) & 0xFF) + (p & 0xFF)) / 3);
+        }
+    }
+
+    // ── Sobel ────────────────────────────────────────────────────────
+    public BufferedImage sequential(BufferedImage in, Magnitude mag, boolean grayOutput) {
+        int w = in.getWidth(), h = in.getHeight();
+        byte[] lum = luminance(in);
+        BufferedImage out = ImageFilter.newOutput(w, h, grayOutput);
+        if (grayOutput) {
+            byte[] dst = ImageFilter.bytes(out);
+            for (int y = 0; y < h; y++) {
+                ctx.checkpoint();
+                sobelRowGray(lum, dst, w, h, y, mag);
+            }
+        } else {
+            int[] dst = ImageFilter.ints(out);
+            for (int y = 0; y < h; y++) {
+                ctx.checkpoint();
+                sobelRowArgb(lum, dst, w, h, y, mag);
+            }
+        }
+        return out;
+    }
+
+    public BufferedImage parallel(BufferedImage in, Magnitude mag, boolean grayOutput) {
+        return parallel(in, mag, grayOutput, 1);
+    }
+
+    public BufferedImage parallel(BufferedImage in, Magnitude mag, boolean grayOutput, int chunkRows) {
+        int w = in.getWidth(), h = in.getHeight();
+        byte[] lum = new byte[w * h];
+        parallelLuminance(in, lum, chunkRows);
+        BufferedImage out = ImageFilter.newOutput(w, h, grayOutput);
+        if (grayOutput) {
+            byte[] dst = ImageFilter.bytes(out);
+            ctx.parallelRows(h, chunkRows, y -> sobelRowGray(lum, dst, w, h, y, mag));
+        } else {
+            int[] dst = ImageFilter.ints(out);
+            ctx.parallelRows(h, chunkRows, y -> sobelRowArgb(lum, dst, w, h, y, mag));
+        }
+        return out;
+    }
+
+    private static void sobelRowGray(byte[] lum, byte[] dst, int w, int h, int y, Magnitude mag) {
+        int off = y * w;
+        int up  = Math.max(0, y - 1) * w, dn = Math.min(h - 1, y + 1) * w;
+        for (int x = 0; x < w; x++) {
+            dst[off + x] = (byte) sobel(lum, up, off, dn, x, w, mag);
+        }
+    }
+
+    private static void sobelRowArgb(byte[] lum, int[] dst, int w, int h, int y, Magnitude mag) {
+        int off = y * w;
+        int up  = Math.max(0, y - 1) * w, dn = Math.min(h - 1, y + 1) * w;
+        for (int x = 0; x < w; x++) {
+            int e = sobel(lum, up, off, dn, x, w, mag);
+            dst[off + x] = (0xFF << 24) | (e << 16) | (e << 8) | e;
+        }
+    }
+
+    /** Edge strength at column x given the offsets of the rows above, at and below (edge-clamped). */
+    private static int sobel(byte[] lum, int up, int mid, int dn, int x, int w, Magnitude mag) {
+        int xl = x == 0 ? 0 : x - 1, xr = x == w - 1 ? x : x + 1;
+        int a = lum[up + xl] & 0xFF, b = lum[up + x] & 0xFF, c = lum[up + xr] & 0xFF;
+        int d = lum[mid + xl] & 0xFF,                        f = lum[mid + xr] & 0xFF;
+        int g = lum[dn + xl] & 0xFF, hh = lum[dn + x] & 0xFF, i = lum[dn + xr] & 0xFF;
+        int gx = (c + 2 * f + i) - (a + 2 * d + g);
+        int gy = (a + 2 * b + c) - (g + 2 * hh + i);
+        if (mag == Magnitude.L1) {
+            return Math.min(255, Math.abs(gx) + Math.abs(gy));
+        }
+        int m2 = gx * gx + gy * gy;
+        return m2 >= SAT ? 255 : SQRT[m2] & 0xFF;
+    }
+}
@@ -0,0 +1,129 @@
+// File: src/com/myteam/filter/ExecutionContext.java
+package com.myteam.filter;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * The pool a job's parallel filter passes run on.
+ * Parallel streams submitted from inside a ForkJoinPool task stay on that
+ * pool, so wrapping the row loop in {@code pool.submit(..).join()} is enough
+ * to keep a job off {@link ForkJoinPool#commonPool()}.
+ * Every row handed out by {@code parallelRows} first passes the context's
+ * {@link CancellationToken}, so cancelling the token stops the pass within a
+ * row on each worker.
+ */
+public class ExecutionContext implements AutoCloseable {
+    private static final ExecutionContext COMMON =
+        new ExecutionContext(ForkJoinPool.commonPool(), false, null);
+
+    private final ForkJoinPool pool;
+    private final boolean owned;
+    private final Runnable onClose;
+    private final CancellationToken token;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    ExecutionContext(ForkJoinPool pool, boolean owned, Runnable onClose) {
+        this(pool, owned, onClose, CancellationToken.none());
+    }
+
+    private ExecutionContext(ForkJoinPool pool, boolean owned, Runnable onClose, CancellationToken token) {
+        this.pool    = pool;
+        this.owned   = owned;
+        this.onClose = onClose;
+        this.token   = token;
+    }
+
+    /** Shared context backed by the JVM-wide common pool (the old behaviour). */
+    public static ExecutionContext common() { return COMMON; }
+
+    /** Private pool with exactly {@code parallelism} workers; close it when the job ends. */
+    public static ExecutionContext withParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism < 1: " + parallelism);
+        return new ExecutionContext(newPool(parallelism), true, null);
+    }
+
+    /** Wraps a caller-managed pool; closing the context leaves the pool running. */
+    public static ExecutionContext of(ForkJoinPool pool) {
+        return new ExecutionContext(pool, false, null);
+    }
+
+    static ForkJoinPool newPool(int parallelism) {
+        return new ForkJoinPool(parallelism, p -> {
+            var t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("filter-worker-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    public int parallelism() { return pool.getParallelism(); }
+
+    public ForkJoinPool pool() { return pool; }
+
+    /**
+     * Same pool, but every pass checks {@code token}. The view does not own the
+     * pool: closing it is a no-op, the original context still has to be closed.
+     */
+    public ExecutionContext withToken(CancellationToken token) {
+        return new ExecutionContext(pool, false, null, token);
+    }
+
+    public CancellationToken token() { return token; }
+
+    /** Throws {@link CancellationException} once the token is cancelled or expired. */
+    public void checkpoint() {
+        token.checkpoint();
+    }
+
+    /** Runs {@code row} for every y in [0,h) in parallel on this context's pool. */
+    public void parallelRows(int h, IntConsumer row) {
+        run(() -> IntStream.range(0, h).parallel().forEach(y -> {
+            token.checkpoint();
+            row.accept(y);
+        }));
+    }
+
+    /**
+     * Like {@link #parallelRows(int, IntConsumer)} but hands out bands of
+     * {@code chunkRows} consecutive rows per task; fewer, larger bands cut
+     * fork/join overhead and cap how many workers the pass can occupy.
+     */
+    public void parallelRows(int h, int chunkRows, IntConsumer row) {
+        if (chunkRows <= 1) { parallelRows(h, row); return; }
+        int chunks = (h + chunkRows - 1) / chunkRows;
+        run(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+            int end = Math.min(h, (c + 1) * chunkRows);
+            for (int y = c * chunkRows; y < end; y++) {
+                token.checkpoint();
+                row.accept(y);
+            }
+        }));
+    }
+
+    /** Runs {@code task} inside this context's pool and waits for it. */
+    public void run(Runnable task) {
+        token.checkpoint();
+        if (pool == ForkJoinPool.commonPool() || ForkJoinTask.getPool() == pool) {
+            task.run();
+        } else {
+            try {
+                pool.submit(task).join();
+            } catch (CancellationException e) {
+                token.checkpoint();   // rethrow with the token's reason; join() may drop the message
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        if (owned) pool.shutdown();
+        if (onClose != null) onClose.run();
+    }
+}
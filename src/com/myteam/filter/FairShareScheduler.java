@@ -0,0 +1,59 @@
+// File: src/com/myteam/filter/FairShareScheduler.java
+package com.myteam.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Hands out per-job {@link ExecutionContext}s so concurrent jobs split the
+ * machine's cores instead of all queueing on the common pool.
+ * Every acquire/release re-divides the cores evenly over the live jobs
+ * (via {@link ForkJoinPool#setParallelism}), so a long blur that started
+ * alone shrinks as soon as a second job arrives. Each job keeps at least
+ * one worker.
+ */
+public class FairShareScheduler {
+    private final int totalCores;
+    private final List<ForkJoinPool> live = new ArrayList<>();
+
+    public FairShareScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public FairShareScheduler(int totalCores) {
+        if (totalCores < 1) throw new IllegalArgumentException("totalCores < 1: " + totalCores);
+        this.totalCores = totalCores;
+    }
+
+    /** Reserves a share of the cores for one job; close the returned context to give it back. */
+    public synchronized ExecutionContext acquire() {
+        ForkJoinPool pool = ExecutionContext.newPool(shareOf(live.size(), live.size() + 1));
+        live.add(pool);
+        rebalance();
+        FilterEvents.lease("acquire", pool.getParallelism(), live.size());
+        return new ExecutionContext(pool, true, () -> release(pool));
+    }
+
+    private synchronized void release(ForkJoinPool pool) {
+        live.remove(pool);
+        rebalance();
+        FilterEvents.lease("release", pool.getParallelism(), live.size());
+    }
+
+    private void rebalance() {
+        for (int i = 0; i < live.size(); i++) {
+            live.get(i).setParallelism(shareOf(i, live.size()));
+        }
+    }
+
+    /** Cores for the i-th of n jobs; the remainder goes to the oldest jobs. */
+    private int shareOf(int i, int n) {
+        int base = totalCores / n, extra = totalCores % n;
+        return Math.max(1, base + (i < extra ? 1 : 0));
+    }
+
+    public synchronized int activeJobs() { return live.size(); }
+
+    public int totalCores() { return totalCores; }
+}
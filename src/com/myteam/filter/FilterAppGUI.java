@@ -13,6 +13,8 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class FilterAppGUI extends JFrame {
@@ -23,8 +25,14 @@ public class FilterAppGUI extends JFrame {
     private final JComboBox<ImageFilter.FilterType> filterCombo;
     private final JLabel kernelLbl, origLbl, seqLbl, parLbl;
     private final JComboBox<Integer> kernelCombo;
+    private final JComboBox<ImageFilter.Strategy> strategyCombo;
+    private final JCheckBox grayChk, jfrChk;
     private final DefaultTableModel tableModel;
     private SwingWorker<?,?> worker;
+    private CancellationToken runToken;
+
+    // ── SHARED CORE BUDGET ACROSS CONCURRENT JOBS ──────────────────
+    private static final FairShareScheduler SCHEDULER = new FairShareScheduler();
 
     // ── STORED IMAGES FOR RESCALING ────────────────────────────────
     private BufferedImage origImg, seqImg, parImg;
@@ -110,6 +118,13 @@ public class FilterAppGUI extends JFrame {
         kernelLbl   = new JLabel("Kernel:");
         kernelCombo = new JComboBox<>(new Integer[]{3,5,7,9,11});
         kernelCombo.setSelectedItem(9);
+        strategyCombo = new JComboBox<>(new ImageFilter.Strategy[]{
+            ImageFilter.Strategy.PARALLEL, ImageFilter.Strategy.AUTO});
+        strategyCombo.setToolTipText("Parallel run: always parallel, or auto-tuned per call");
+        grayChk = new JCheckBox("8-bit gray");
+        grayChk.setToolTipText("Grayscale/Edge results as single-channel images and video frames");
+        jfrChk = new JCheckBox("JFR");
+        jfrChk.setToolTipText("Record the run with Flight Recorder and save <output>.jfr next to the results");
         runBtn       = new JButton("Run Filter");
         stopBtn      = new JButton("Stop");
         stopVideoBtn = new JButton("Stop Video");
@@ -119,6 +134,9 @@ public class FilterAppGUI extends JFrame {
         filterPanel.add(filterCombo);
         filterPanel.add(kernelLbl);
         filterPanel.add(kernelCombo);
+        filterPanel.add(strategyCombo);
+        filterPanel.add(grayChk);
+        filterPanel.add(jfrChk);
         filterPanel.add(runBtn);
         filterPanel.add(stopBtn);
         filterPanel.add(stopVideoBtn);
@@ -183,17 +201,20 @@ public class FilterAppGUI extends JFrame {
             kernelCombo.setVisible(true);
         });
         vidRadio.addActionListener(e->{
+            VideoSupport.preload();   // FFmpeg natives load while the user picks a file
             filterCombo.setEnabled(true);
             kernelLbl.setVisible(true);
             kernelCombo.setVisible(true);
         });
         filterCombo.addActionListener(e->{
-            boolean g = filterCombo.getSelectedItem()==ImageFilter.FilterType.GAUSSIAN;
+            Object sel = filterCombo.getSelectedItem();
+            boolean g = sel==ImageFilter.FilterType.GAUSSIAN || sel==ImageFilter.FilterType.MEDIAN;
             kernelLbl.setVisible(g);
             kernelCombo.setVisible(g);
         });
         runBtn.addActionListener(this::onRun);
         stopBtn.addActionListener(e->{
+            if(runToken!=null) runToken.cancel();   // filter passes and the frame loop stop at the next row/frame
             if(worker!=null) worker.cancel(true);
             if(looper!=null) { looper.stop(); looperThread.interrupt(); looper = null; looperThread = null; }
             stopVideoBtn.setEnabled(false);
@@ -248,6 +269,9 @@ public class FilterAppGUI extends JFrame {
         String out = outField.getText().trim();
         ImageFilter.FilterType ft = (ImageFilter.FilterType)filterCombo.getSelectedItem();
         int k = (Integer)kernelCombo.getSelectedItem();
+        ImageFilter.Strategy st = (ImageFilter.Strategy)strategyCombo.getSelectedItem();
+        ImageFilter.Output fo = grayChk.isSelected() ? ImageFilter.Output.BYTE_GRAY : ImageFilter.Output.ARGB;
+        boolean jfr = jfrChk.isSelected();
 
         runBtn.setEnabled(false);
         stopBtn.setEnabled(true);
@@ -262,18 +286,50 @@ public class FilterAppGUI extends JFrame {
         seqLbl.setIcon(null);
         parLbl.setIcon(null);
 
+        runToken = CancellationToken.create();
+        ExecutionContext ctx = SCHEDULER.acquire();
+        ImageFilter filter = new ImageFilter(ctx.withToken(runToken));
+        filter.setOutput(fo);
+        // the lease goes back when the background work really ends, not when Stop makes
+        // done() fire; whoever claims this first (the worker, or done() if it never ran) releases it
+        AtomicBoolean leaseClaimed = new AtomicBoolean(false);
+
         if(imgRadio.isSelected()) {
             worker = new SwingWorker<ImageProcessor.TimingResult,Void>(){
                 @Override protected ImageProcessor.TimingResult doInBackground() throws Exception {
+                    if (!leaseClaimed.compareAndSet(false, true)) return null;
+                    try {
+                        return filterImage();
+                    } finally {
+                        ctx.close();
+                    }
+                }
+                private ImageProcessor.TimingResult filterImage() throws Exception {
                     origImg = ImageIO.read(new File(in));
-                    ImageProcessor ip = new ImageProcessor(new ImageFilter(), ft, k);
+                    if (origImg == null) throw new IllegalArgumentException("Cannot read: " + in);
+                    ImageProcessor ip = new ImageProcessor(filter, ft, k);
+                    ip.setStrategy(st);
+                    ip.setRecording(jfr);
                     String s1 = out + "_seq.png", s2 = out + "_par.png";
-                    ImageProcessor.TimingResult t = ip.process(in, s1, s2);
-                    seqImg = ImageIO.read(new File(s1));
-                    parImg = ImageIO.read(new File(s2));
-                    return t;
+                    // previews come straight from memory; the PNGs are written in the background
+                    ImageProcessor.Result r = ip.process(origImg, s1, s2);
+                    r.written.exceptionally(ex -> {
+                        Throwable c = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        String msg = c.getMessage() != null ? c.getMessage() : c.toString();
+                        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(
+                            FilterAppGUI.this,
+                            "Could not save results: " + msg,
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE
+                        ));
+                        return null;
+                    });
+                    seqImg = r.seqImg;
+                    parImg = r.parImg;
+                    return r.timing;
                 }
                 @Override protected void done(){
+                    if (leaseClaimed.compareAndSet(false, true)) ctx.close();   // cancelled before it started
                     runBtn.setEnabled(true);
                     stopBtn.setEnabled(false);
                     try {
@@ -286,6 +342,8 @@ public class FilterAppGUI extends JFrame {
                         tableModel.setValueAt(String.format("%.1f", t.parRamMB),   2,2);
                         tableModel.setValueAt(String.format("%.2fx",t.speedup()),  3,1);
                         rescalePreviews();
+                    } catch(CancellationException ex){
+                        // stopped by the user
                     } catch(Exception ex){
                         JOptionPane.showMessageDialog(
                             FilterAppGUI.this,
@@ -300,11 +358,19 @@ public class FilterAppGUI extends JFrame {
         } else {
             worker = new SwingWorker<VideoProcessor.TimingResult,Void>(){
                 @Override protected VideoProcessor.TimingResult doInBackground() throws Exception {
-                    VideoProcessor vp = new VideoProcessor(new ImageFilter(), ft, k);
-                    String seqPath = out + "_seq.mp4", parPath = out + "_par.mp4";
-                    return vp.process(in, seqPath, parPath);
+                    if (!leaseClaimed.compareAndSet(false, true)) return null;
+                    try {
+                        VideoProcessor vp = new VideoProcessor(filter, ft, k);
+                        vp.setStrategy(st);
+                        vp.setRecording(jfr);
+                        String seqPath = out + "_seq.mp4", parPath = out + "_par.mp4";
+                        return vp.process(in, seqPath, parPath);
+                    } finally {
+                        ctx.close();
+                    }
                 }
                 @Override protected void done(){
+                    if (leaseClaimed.compareAndSet(false, true)) ctx.close();   // cancelled before it started
                     runBtn.setEnabled(true);
                     stopBtn.setEnabled(false);
                     try {
@@ -322,6 +388,8 @@ public class FilterAppGUI extends JFrame {
                         looperThread = new Thread(looper);
                         looperThread.start();
                         stopVideoBtn.setEnabled(true);
+                    } catch(CancellationException ex){
+                        // stopped by the user
                     } catch(Exception ex){
                         JOptionPane.showMessageDialog(
                             FilterAppGUI.this,
@@ -360,10 +428,20 @@ public class FilterAppGUI extends JFrame {
             finalH = availH;
             finalW = (int)(availH*ar);
         }
-        Image scaled = img.getScaledInstance(finalW, finalH, Image.SCALE_SMOOTH);
+        Image scaled = rgb(img).getScaledInstance(finalW, finalH, Image.SCALE_SMOOTH);
         return new ImageIcon(scaled);
     }
 
+    /** Gray results go through drawImage first; getScaledInstance would gamma-convert them and wash them out. */
+    private static BufferedImage rgb(BufferedImage img){
+        if(img.getType()!=BufferedImage.TYPE_BYTE_GRAY) return img;
+        BufferedImage out = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+        return out;
+    }
+
     /** Runnable that loops through videos and updates the respective label continuously */
     private class VideoLooper implements Runnable {
         private final String[] paths;
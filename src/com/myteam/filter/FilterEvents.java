@@ -0,0 +1,92 @@
+// File: src/com/myteam/filter/FilterEvents.java
+package com.myteam.filter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Custom Java Flight Recorder events. They cost next to nothing unless a
+ * recording has them enabled (see {@link FlightRecording}), and show up under
+ * "FilterApp" in JDK Mission Control. Emitters check {@link #active()} first:
+ * loading the first event class registers it with JFR, which costs about
+ * 0.3 s at startup even when nothing is recording.
+ */
+public final class FilterEvents {
+    private FilterEvents() {}
+
+    @Name("com.myteam.filter.FilterInvocation")
+    @Label("Filter Invocation")
+    @Description("One ImageFilter call on a whole image or ROI tile")
+    @Category({"FilterApp", "Filters"})
+    @StackTrace(false)
+    public static class FilterInvocation extends Event {
+        @Label("Filter") String filter;
+        @Label("Strategy") String strategy;
+        @Label("Kernel") int kernel;
+        @Label("Width") int width;
+        @Label("Height") int height;
+        @Label("Rows Per Task") int chunkRows;
+        @Label("Parallelism") int parallelism;
+    }
+
+    @Name("com.myteam.filter.PipelinePhase")
+    @Label("Pipeline Phase")
+    @Description("Decode, filter or encode span of an image job or one video frame")
+    @Category({"FilterApp", "Pipeline"})
+    @StackTrace(false)
+    public static class PipelinePhase extends Event {
+        @Label("Phase") String phase;
+        @Label("Pass") String pass;
+        @Label("Frame") @Description("Frame index, -1 for still images") long frame;
+    }
+
+    @Name("com.myteam.filter.PoolLease")
+    @Label("Pool Lease")
+    @Description("A job acquiring or releasing its share of the cores")
+    @Category({"FilterApp", "Scheduling"})
+    @StackTrace(false)
+    public static class PoolLease extends Event {
+        @Label("Action") String action;
+        @Label("Parallelism") int parallelism;
+        @Label("Active Jobs") int activeJobs;
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────
+    /** True once JFR runs in this JVM (any recording, from here, jcmd or -XX:StartFlightRecording). */
+    static boolean active() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /** Starts a span; null while JFR is not running. Close it with {@link #end}. */
+    static PipelinePhase phase(String phase, String pass, long frame) {
+        if (!active()) return null;
+        PipelinePhase e = new PipelinePhase();
+        if (e.isEnabled()) {
+            e.phase = phase;
+            e.pass  = pass;
+            e.frame = frame;
+            e.begin();
+        }
+        return e;
+    }
+
+    static void end(PipelinePhase e) {
+        if (e != null) e.commit();
+    }
+
+    static void lease(String action, int parallelism, int activeJobs) {
+        if (!active()) return;
+        PoolLease e = new PoolLease();
+        if (e.isEnabled()) {
+            e.action      = action;
+            e.parallelism = parallelism;
+            e.activeJobs  = activeJobs;
+            e.commit();
+        }
+    }
+}
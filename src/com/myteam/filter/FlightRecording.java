@@ -0,0 +1,62 @@
+// File: src/com/myteam/filter/FlightRecording.java
+package com.myteam.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * A JFR recording scoped to one processing run: the JDK's low-overhead
+ * "default" settings plus every {@link FilterEvents} event without threshold.
+ * The result is a .jfr file that opens in JDK Mission Control.
+ */
+public final class FlightRecording implements AutoCloseable {
+    private final Recording recording;
+
+    private FlightRecording(Recording recording) {
+        this.recording = recording;
+    }
+
+    public static FlightRecording start(String name) {
+        Recording r;
+        try {
+            r = new Recording(Configuration.getConfiguration("default"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Bad JFR configuration", e);
+        }
+        r.setName(name);
+        r.enable(FilterEvents.FilterInvocation.class).withoutThreshold();
+        r.enable(FilterEvents.PipelinePhase.class).withoutThreshold();
+        r.enable(FilterEvents.PoolLease.class);
+        r.start();
+        return new FlightRecording(r);
+    }
+
+    /** Stops the recording and writes it to {@code path}. */
+    public File dump(String path) throws IOException {
+        File f = new File(path);
+        recording.stop();
+        recording.dump(f.toPath());
+        return f;
+    }
+
+    @Override
+    public void close() {
+        recording.close();
+    }
+
+    /** {@code out/clip_par.mp4} -> {@code out/clip.jfr}: the recording lands next to the run's outputs. */
+    public static String pathNextTo(String outputPath) {
+        String p = outputPath;
+        int slash = Math.max(p.lastIndexOf('/'), p.lastIndexOf(File.separatorChar));
+        int dot = p.lastIndexOf('.');
+        if (dot > slash) p = p.substring(0, dot);
+        if (p.endsWith("_seq") || p.endsWith("_par")) p = p.substring(0, p.length() - 4);
+        return p + ".jfr";
+    }
+}
@@ -0,0 +1,200 @@
+// File: src/com/myteam/filter/GaussianPyramid.java
+package com.myteam.filter;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+
+/**
+ * Multi-scale Gaussian stack built from a single decode.
+ * The input is split into float planes once and all kernel sizes are produced
+ * in the same horizontal sweep: the kernels are symmetric, so each level is
+ * g[0]*p[x] + sum_j g[j]*(p[x-j] + p[x+j]) and the pair sums for tap j are
+ * computed once and shared by every level whose radius reaches j; going from
+ * one kernel size to the next only adds the outer taps. The image is swept in
+ * bands of rows; each band keeps only a rolling window of 2R+1 horizontally
+ * blurred rows per level (R = largest radius) and writes finished rows straight
+ * into the output images, so the only full-size float level alive is the
+ * smallest one, which the octaves start from. (Cascading small blurs
+ * is not used: ImageFilter's kernels use sigma = k truncated at k/2, which
+ * does not compose, and the cascade drifted by tens of levels at k = 11.)
+ * Octaves halve the resolution: each is the previous level blurred with the
+ * smallest kernel and 2x2-averaged.
+ */
+public class GaussianPyramid {
+    public static class Result {
+        public final int[] kernels;
+        public final BufferedImage[] blurred;   // one per kernel, ascending
+        public final BufferedImage[] octaves;   // octaves[j] is 1/2^(j+1) of the input size
+        public Result(int[] kernels, BufferedImage[] blurred, BufferedImage[] octaves) {
+            this.kernels = kernels;
+            this.blurred = blurred;
+            this.octaves = octaves;
+        }
+    }
+
+    private final ExecutionContext ctx;
+    private final ConvolutionEngine conv;
+
+    public GaussianPyramid() {
+        this(ExecutionContext.common());
+    }
+
+    public GaussianPyramid(ExecutionContext ctx) {
+        this.ctx  = ctx;
+        this.conv = new ConvolutionEngine(ctx);
+    }
+
+    /** Builds one blurred image per (odd) kernel size plus {@code octaves} downsampled levels. */
+    public Result build(BufferedImage in, int[] kernelSizes, int octaves) {
+        if (kernelSizes.length == 0) throw new IllegalArgumentException("No kernel sizes");
+        int[] ks = kernelSizes.clone();
+        Arrays.sort(ks);
+        for (int k : ks)
+            if (k < 1 || k % 2 == 0) throw new IllegalArgumentException("Kernel size must be odd: " + k);
+
+        int w = in.getWidth(), h = in.getHeight();
+        float[][] planes = conv.split(in, true, 1);
+        float[][] g = new float[ks.length][];
+        for (int i = 0; i < ks.length; i++) g[i] = gaussian1d(ks[i] / 2, ks[i]);   // sigma = k, as in ImageFilter
+
+        BufferedImage[] blurred = new BufferedImage[ks.length];
+        int[][] dst = new int[ks.length][];
+        for (int i = 0; i < ks.length; i++) {
+            blurred[i] = ImageFilter.newOutput(w, h, false);
+            dst[i] = ImageFilter.ints(blurred[i]);
+        }
+        float[][] base = octaves > 0 ? new float[planes.length][w * h] : null;
+        int R = g[g.length - 1].length / 2;
+        int perWorker = (h + 2 * ctx.parallelism() - 1) / (2 * ctx.parallelism());
+        int rows = Math.max(4 * (2 * R + 1), perWorker);   // halo rows are recomputed per band
+        int bands = (h + rows - 1) / rows;
+        ctx.parallelRows(bands, 1, b -> band(planes, w, h, g, b * rows, Math.min(h, (b + 1) * rows), dst, base));
+
+        BufferedImage[] oct = new BufferedImage[octaves];
+        float[][] cur = base;
+        int cw = w, ch = h;
+        for (int j = 0; j < octaves && cw > 1 && ch > 1; j++) {
+            if (j > 0) cur = conv.separable(cur, cw, ch, g[0], g[0], true, 1);
+            cur = decimate(cur, cw, ch);
+            cw /= 2; ch /= 2;
+            oct[j] = conv.merge(cur, cw, ch, true, 1);
+        }
+        return new Result(ks, blurred, oct);
+    }
+
+    /**
+     * Output rows [y0, y1) of every level. Horizontal rows go into a ring of
+     * 2R+1 slots per level (row y lives in slot y mod 2R+1), filled just ahead
+     * of the vertical pass that reads them.
+     */
+    private void band(float[][] src, int w, int h, float[][] g, int y0, int y1, int[][] dst, float[][] base) {
+        int levels = g.length, nc = src.length, R = g[levels - 1].length / 2, slots = 2 * R + 1;
+        float[][][] ring = new float[levels][nc][slots * w];
+        float[][] row = new float[nc][w];
+        float[] pad = new float[w + 2 * R], pair = new float[w];
+        int next = Math.max(0, y0 - R);
+        for (int y = y0; y < y1; y++) {
+            ctx.checkpoint();
+            for (int last = Math.min(h - 1, y + R); next <= last; next++)
+                horizontal(src, w, next, g, ring, (next % slots) * w, pad, pair);
+            for (int i = 0; i < levels; i++) {
+                vertical(ring[i], w, h, y, g[i], slots, row);
+                if (i == 0 && base != null)
+                    for (int c = 0; c < nc; c++) System.arraycopy(row[c], 0, base[c], y * w, w);
+                ConvolutionEngine.mergeRow(row, 0, dst[i], y * w, w);
+            }
+        }
+    }
+
+    /** Horizontal pass of input row {@code y} for every level at once, into {@code out[level][channel]} at {@code at}. */
+    private static void horizontal(float[][] src, int w, int y, float[][] g, float[][][] out, int at,
+                                   float[] pad, float[] pair) {
+        int levels = g.length, R = g[levels - 1].length / 2, off = y * w;
+        for (int c = 0; c < src.length; c++) {
+            float[] s = src[c];
+            for (int x = 0; x < pad.length; x++) pad[x] = s[off + Math.min(w - 1, Math.max(0, x - R))];
+            for (int i = 0; i < levels; i++) {
+                float[] o = out[i][c];
+                float g0 = g[i][g[i].length / 2];
+                for (int x = 0; x < w; x++) o[at + x] = g0 * pad[x + R];
+            }
+            for (int j = 1; j <= R; j++) {
+                for (int x = 0; x < w; x++) pair[x] = pad[x + R - j] + pad[x + R + j];
+                for (int i = 0; i < levels; i++) {
+                    int r = g[i].length / 2;
+                    if (r < j) continue;   // level too small for tap j
+                    float[] o = out[i][c];
+                    float gj = g[i][r + j];
+                    for (int x = 0; x < w; x++) o[at + x] += gj * pair[x];
+                }
+            }
+        }
+    }
+
+    /** Vertical pass of output row {@code y} of one level, reading that level's ring. */
+    private static void vertical(float[][] ring, int w, int h, int y, float[] g, int slots, float[][] out) {
+        int r = g.length / 2;
+        for (int c = 0; c < ring.length; c++) {
+            float[] s = ring[c], o = out[c];
+            int mid = (y % slots) * w;
+            float g0 = g[r];
+            for (int x = 0; x < w; x++) o[x] = g0 * s[mid + x];
+            for (int j = 1; j <= r; j++) {
+                int a = (Math.max(0, y - j) % slots) * w, b = (Math.min(h - 1, y + j) % slots) * w;
+                float gj = g[r + j];
+                for (int x = 0; x < w; x++) o[x] += gj * (s[a + x] + s[b + x]);
+            }
+        }
+    }
+
+    /** Normalised sampled Gaussian of the given radius. */
+    static float[] gaussian1d(int radius, double sigma) {
+        float[] g = new float[2 * radius + 1];
+        double twoSigmaSq = 2 * sigma * sigma;
+        float sum = 0;
+        for (int i = -radius; i <= radius; i++) sum += g[i + radius] = (float) Math.exp(-(i * i) / twoSigmaSq);
+        for (int i = 0; i < g.length; i++) g[i] /= sum;
+        return g;
+    }
+
+    private float[][] decimate(float[][] src, int w, int h) {
+        int nw = w / 2, nh = h / 2;
+        float[][] out = new float[src.length][nw * nh];
+        ctx.parallelRows(nh, y -> {
+            int r0 = 2 * y * w, r1 = r0 + w;
+            for (int c = 0; c < src.length; c++) {
+                float[] s = src[c], o = out[c];
+                for (int x = 0; x < nw; x++) {
+                    int i = 2 * x;
+                    o[y * nw + x] = (s[r0 + i] + s[r0 + i + 1] + s[r1 + i] + s[r1 + i + 1]) * 0.25f;
+                }
+            }
+        });
+        return out;
+    }
+
+    /** Writes every level as PNG ({@code base_k<k>.png}, {@code base_oct<j>.png}) in one parallel batch. */
+    public void writeAll(Result r, String outBase) throws IOException {
+        File parent = new File(outBase).getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        int n = r.blurred.length, total = n + r.octaves.length;
+        try {
+            ctx.parallelRows(total, 1, i -> {
+                BufferedImage img = i < n ? r.blurred[i] : r.octaves[i - n];
+                if (img == null) return;
+                String name = i < n ? "_k" + r.kernels[i] : "_oct" + (i - n + 1);
+                try {
+                    ImageIO.write(img, "png", new File(outBase + name + ".png"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -2,13 +2,73 @@
 package com.myteam.filter;
 
 import java.awt.image.BufferedImage;
-import java.util.stream.IntStream;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.util.function.Supplier;
 
 public class ImageFilter {
-    public enum FilterType { GAUSSIAN, GRAYSCALE, EDGE }
+    public enum FilterType { GAUSSIAN, GRAYSCALE, EDGE, MEDIAN }
+    public enum Strategy { SEQUENTIAL, PARALLEL, AUTO }
+    /**
+     * Pixel format of grayscale/edge results; BYTE_GRAY is a quarter of the size of ARGB.
+     * BYTE_GRAY images live in Java's linear gray colour space, so {@code getRGB} and
+     * {@code getScaledInstance} gamma-convert them (100 reads back as 0xa8a8a8): read the
+     * raster ({@code getRaster()}, its {@code DataBufferByte}) instead, or {@code drawImage} them onto
+     * an RGB image for display.
+     */
+    public enum Output { ARGB, BYTE_GRAY }
+
+    private final ExecutionContext ctx;
+    private final EdgeDetector edges;
+    private final ConvolutionEngine conv;
+    private final MedianFilter median;
+    private volatile AutoTuner tuner;
+    private volatile Output output = Output.ARGB;
+
+    public ImageFilter() {
+        this(ExecutionContext.common());
+    }
+
+    /** All parallel* passes of this filter run on {@code ctx}'s pool. */
+    public ImageFilter(ExecutionContext ctx) {
+        this.ctx    = ctx;
+        this.edges  = new EdgeDetector(ctx);
+        this.conv   = new ConvolutionEngine(ctx);
+        this.median = new MedianFilter(ctx);
+    }
+
+    public ExecutionContext context() { return ctx; }
+
+    /**
+     * Same pool, output format and (if already resolved) tuning profile, but
+     * every pass also checks {@code token}, e.g. a per-frame budget inside a job.
+     */
+    public ImageFilter withToken(CancellationToken token) {
+        ImageFilter f = new ImageFilter(ctx.withToken(token));
+        f.output = output;
+        f.tuner  = tuner;
+        return f;
+    }
+
+    /** Monochrome filters (grayscale, edge) produce TYPE_BYTE_GRAY images when set to BYTE_GRAY. */
+    public void setOutput(Output output) { this.output = output; }
+
+    public Output output() { return output; }
+
+    private boolean gray() { return output == Output.BYTE_GRAY; }
+
+    /** Overrides the machine profile used by the auto* methods (defaults to {@link AutoTuner#shared()}). */
+    public void setTuner(AutoTuner tuner) { this.tuner = tuner; }
+
+    /** The profile the auto* methods use; the first call loads or calibrates it. */
+    public AutoTuner tuner() {
+        AutoTuner t = tuner;
+        if (t == null) tuner = t = AutoTuner.shared().on(ctx);
+        return t;
+    }
 
     // ── Create a true Gaussian kernel with stronger blur ────────────────
-    private float[][] createGaussianKernel(int k) {
+    float[][] createGaussianKernel(int k) {
         int r = k / 2;
         float sigma = k;         // increased sigma for "very very" blur
         float twoSigmaSq = 2 * sigma * sigma;
@@ -31,78 +91,46 @@ public class ImageFilter {
         return kernel;
     }
 
-    // ── Gaussian blur, sequential with true Gaussian weights ───────────
+    // ── Gaussian blur, sequential (separable pass via ConvolutionEngine) ─
     public BufferedImage sequentialGaussian(BufferedImage in, int k) {
-        int w = in.getWidth(), h = in.getHeight(), r = k / 2;
-        int[] inPix = in.getRGB(0, 0, w, h, null, 0, w), outPix = new int[w * h];
-        float[][] kernel = createGaussianKernel(k);
-
-        for (int y = 0; y < h; y++) {
-            int yOff = y * w;
-            for (int x = 0; x < w; x++) {
-                float sr = 0, sg = 0, sb = 0;
-                for (int dy = -r; dy <= r; dy++) {
-                    int yy = Math.min(h - 1, Math.max(0, y + dy));
-                    int row = yy * w;
-                    for (int dx = -r; dx <= r; dx++) {
-                        int xx = Math.min(w - 1, Math.max(0, x + dx));
-                        float weight = kernel[dy + r][dx + r];
-                        int rgb = inPix[row + xx];
-                        sr += ((rgb >> 16) & 0xFF) * weight;
-                        sg += ((rgb >> 8) & 0xFF) * weight;
-                        sb += (rgb & 0xFF) * weight;
-                    }
-                }
-                int ir = Math.min(255, Math.max(0, Math.round(sr)));
-                int ig = Math.min(255, Math.max(0, Math.round(sg)));
-                int ib = Math.min(255, Math.max(0, Math.round(sb)));
-                outPix[yOff + x] = (0xFF << 24) | (ir << 16) | (ig << 8) | ib;
-            }
-        }
-        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        out.setRGB(0, 0, w, h, outPix, 0, w);
-        return out;
+        return traced(FilterType.GAUSSIAN, Strategy.SEQUENTIAL, in, k, 0, 1,
+                      () -> conv.sequential(in, createGaussianKernel(k)));
     }
 
-    // ── Gaussian blur, parallel with true Gaussian weights ──────────────
+    // ── Gaussian blur, parallel ─────────────────────────────────────────
     public BufferedImage parallelGaussian(BufferedImage in, int k) {
-        int w = in.getWidth(), h = in.getHeight(), r = k / 2;
-        int[] inPix = in.getRGB(0, 0, w, h, null, 0, w), outPix = new int[w * h];
-        float[][] kernel = createGaussianKernel(k);
+        return parallelGaussian(in, k, 1, ctx.parallelism());
+    }
 
-        IntStream.range(0, h).parallel().forEach(y -> {
-            int yOff = y * w;
-            for (int x = 0; x < w; x++) {
-                float sr = 0, sg = 0, sb = 0;
-                for (int dy = -r; dy <= r; dy++) {
-                    int yy = Math.min(h - 1, Math.max(0, y + dy));
-                    int row = yy * w;
-                    for (int dx = -r; dx <= r; dx++) {
-                        int xx = Math.min(w - 1, Math.max(0, x + dx));
-                        float weight = kernel[dy + r][dx + r];
-                        int rgb = inPix[row + xx];
-                        sr += ((rgb >> 16) & 0xFF) * weight;
-                        sg += ((rgb >> 8) & 0xFF) * weight;
-                        sb += (rgb & 0xFF) * weight;
-                    }
-                }
-                int ir = Math.min(255, Math.max(0, Math.round(sr)));
-                int ig = Math.min(255, Math.max(0, Math.round(sg)));
-                int ib = Math.min(255, Math.max(0, Math.round(sb)));
-                outPix[yOff + x] = (0xFF << 24) | (ir << 16) | (ig << 8) | ib;
-            }
-        });
+    BufferedImage parallelGaussian(BufferedImage in, int k, int chunkRows, int threads) {
+        return traced(FilterType.GAUSSIAN, Strategy.PARALLEL, in, k, chunkRows, threads,
+                      () -> conv.parallel(in, createGaussianKernel(k), chunkRows));
+    }
 
-        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        out.setRGB(0, 0, w, h, outPix, 0, w);
-        return out;
+    // ── Arbitrary user kernel (separable / direct / FFT chosen by the engine) ─
+    public BufferedImage sequentialConvolve(BufferedImage in, float[][] kernel) {
+        return conv.sequential(in, kernel);
+    }
+
+    public BufferedImage parallelConvolve(BufferedImage in, float[][] kernel) {
+        return conv.parallel(in, kernel);
     }
 
     // ── Grayscale, sequential ───────────────────────────────────────────
     public BufferedImage sequentialGrayscale(BufferedImage in) {
+        return traced(FilterType.GRAYSCALE, Strategy.SEQUENTIAL, in, 1, 0, 1, () -> grayscale(in));
+    }
+
+    private BufferedImage grayscale(BufferedImage in) {
         int w = in.getWidth(), h = in.getHeight();
+        if (gray()) {
+            BufferedImage out = newOutput(w, h, true);
+            edges.luminance(in, bytes(out));
+            return out;
+        }
         BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
         for (int y = 0; y < h; y++) {
+            ctx.checkpoint();
             for (int x = 0; x < w; x++) {
                 int rgb = in.getRGB(x, y);
                 int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
@@ -115,9 +143,22 @@ public class ImageFilter {
 
     // ── Grayscale, parallel ─────────────────────────────────────────────
     public BufferedImage parallelGrayscale(BufferedImage in) {
+        return parallelGrayscale(in, 1, ctx.parallelism());
+    }
+
+    BufferedImage parallelGrayscale(BufferedImage in, int chunkRows, int threads) {
+        return traced(FilterType.GRAYSCALE, Strategy.PARALLEL, in, 1, chunkRows, threads, () -> grayscale(in, chunkRows));
+    }
+
+    private BufferedImage grayscale(BufferedImage in, int chunkRows) {
         int w = in.getWidth(), h = in.getHeight();
+        if (gray()) {
+            BufferedImage out = newOutput(w, h, true);
+            edges.parallelLuminance(in, bytes(out), chunkRows);
+            return out;
+        }
         BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        IntStream.range(0, h).parallel().forEach(y -> {
+        ctx.parallelRows(h, chunkRows, y -> {
             for (int x = 0; x < w; x++) {
                 int rgb = in.getRGB(x, y);
                 int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
@@ -128,57 +169,116 @@ public class ImageFilter {
         return out;
     }
 
-    // ── Sobel edge kernels ─────────────────────────────────────────────
-    private static final int[][] GX = {{-1, 0, 1}, {-2, 0, 2}, {-1, 0, 1}};
-    private static final int[][] GY = {{ 1, 2, 1}, { 0, 0, 0}, {-1,-2,-1}};
-
-    // ── Edge, sequential ──────────────────────────────────────────────
+    // ── Edge, sequential (luminance plane + integer Sobel) ──────────
     public BufferedImage sequentialEdge(BufferedImage in) {
-        int w = in.getWidth(), h = in.getHeight();
-        int[] inPix = in.getRGB(0, 0, w, h, null, 0, w);
-        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                float sx = 0, sy = 0;
-                for (int ky = -1; ky <= 1; ky++) {
-                    int yy = Math.min(h - 1, Math.max(0, y + ky));
-                    for (int kx = -1; kx <= 1; kx++) {
-                        int xx = Math.min(w - 1, Math.max(0, x + kx));
-                        int rgb = inPix[yy * w + xx];
-                        int lum = (((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF)) / 3;
-                        sx += GX[ky + 1][kx + 1] * lum;
-                        sy += GY[ky + 1][kx + 1] * lum;
-                    }
-                }
-                int e = Math.min(255, (int) Math.hypot(sx, sy));
-                out.setRGB(x, y, (0xFF << 24) | (e << 16) | (e << 8) | e);
-            }
-        }
-        return out;
+        return traced(FilterType.EDGE, Strategy.SEQUENTIAL, in, 3, 0, 1,
+                      () -> edges.sequential(in, EdgeDetector.Magnitude.EXACT, gray()));
     }
 
     // ── Edge, parallel ───────────────────────────────────────────────
     public BufferedImage parallelEdge(BufferedImage in) {
-        int w = in.getWidth(), h = in.getHeight();
-        int[] inPix = in.getRGB(0, 0, w, h, null, 0, w);
-        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        IntStream.range(0, h).parallel().forEach(y -> {
-            for (int x = 0; x < w; x++) {
-                float sx = 0, sy = 0;
-                for (int ky = -1; ky <= 1; ky++) {
-                    int yy = Math.min(h - 1, Math.max(0, y + ky));
-                    for (int kx = -1; kx <= 1; kx++) {
-                        int xx = Math.min(w - 1, Math.max(0, x + kx));
-                        int rgb = inPix[yy * w + xx];
-                        int lum = (((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF)) / 3;
-                        sx += GX[ky + 1][kx + 1] * lum;
-                        sy += GY[ky + 1][kx + 1] * lum;
-                    }
-                }
-                int e = Math.min(255, (int) Math.hypot(sx, sy));
-                out.setRGB(x, y, (0xFF << 24) | (e << 16) | (e << 8) | e);
-            }
-        });
+        return parallelEdge(in, 1, ctx.parallelism());
+    }
+
+    BufferedImage parallelEdge(BufferedImage in, int chunkRows, int threads) {
+        return traced(FilterType.EDGE, Strategy.PARALLEL, in, 3, chunkRows, threads,
+                      () -> edges.parallel(in, EdgeDetector.Magnitude.EXACT, gray(), chunkRows));
+    }
+
+    // ── Median, sequential (column histograms, O(1) per pixel) ────────
+    public BufferedImage sequentialMedian(BufferedImage in, int k) {
+        return traced(FilterType.MEDIAN, Strategy.SEQUENTIAL, in, k, 0, 1, () -> median.sequential(in, k));
+    }
+
+    // ── Median, parallel (one histogram set per stripe) ──────────────
+    public BufferedImage parallelMedian(BufferedImage in, int k) {
+        return parallelMedian(in, k, 1, ctx.parallelism());
+    }
+
+    BufferedImage parallelMedian(BufferedImage in, int k, int chunkRows, int threads) {
+        return traced(FilterType.MEDIAN, Strategy.PARALLEL, in, k, chunkRows, threads,
+                      () -> median.parallel(in, k, chunkRows));
+    }
+
+    // ── Auto-tuned: sequential or parallel, threads and grain per call ─
+    public BufferedImage autoGaussian(BufferedImage in, int k) {
+        AutoTuner.Plan p = tuner().plan(FilterType.GAUSSIAN, in.getWidth(), in.getHeight(), k, ctx.parallelism());
+        return p.parallel ? parallelGaussian(in, k, p.chunkRows, p.threads) : sequentialGaussian(in, k);
+    }
+
+    public BufferedImage autoGrayscale(BufferedImage in) {
+        AutoTuner.Plan p = tuner().plan(FilterType.GRAYSCALE, in.getWidth(), in.getHeight(), 1, ctx.parallelism());
+        return p.parallel ? parallelGrayscale(in, p.chunkRows, p.threads) : sequentialGrayscale(in);
+    }
+
+    public BufferedImage autoEdge(BufferedImage in) {
+        AutoTuner.Plan p = tuner().plan(FilterType.EDGE, in.getWidth(), in.getHeight(), 3, ctx.parallelism());
+        return p.parallel ? parallelEdge(in, p.chunkRows, p.threads) : sequentialEdge(in);
+    }
+
+    public BufferedImage autoMedian(BufferedImage in, int k) {
+        AutoTuner.Plan p = tuner().plan(FilterType.MEDIAN, in.getWidth(), in.getHeight(), k, ctx.parallelism());
+        return p.parallel ? parallelMedian(in, k, p.chunkRows, p.threads) : sequentialMedian(in, k);
+    }
+
+    // ── Dispatch by type and strategy ──────────────────────────────
+    public BufferedImage apply(BufferedImage in, FilterType type, int k, Strategy s) {
+        switch (type) {
+            case GAUSSIAN:
+                return s == Strategy.SEQUENTIAL ? sequentialGaussian(in, k)
+                     : s == Strategy.AUTO       ? autoGaussian(in, k)
+                     :                            parallelGaussian(in, k);
+            case GRAYSCALE:
+                return s == Strategy.SEQUENTIAL ? sequentialGrayscale(in)
+                     : s == Strategy.AUTO       ? autoGrayscale(in)
+                     :                            parallelGrayscale(in);
+            case EDGE:
+                return s == Strategy.SEQUENTIAL ? sequentialEdge(in)
+                     : s == Strategy.AUTO       ? autoEdge(in)
+                     :                            parallelEdge(in);
+            case MEDIAN:
+                return s == Strategy.SEQUENTIAL ? sequentialMedian(in, k)
+                     : s == Strategy.AUTO       ? autoMedian(in, k)
+                     :                            parallelMedian(in, k);
+            default: throw new AssertionError();
+        }
+    }
+
+    // ── Flight recorder ──────────────────────────────────────────────
+    /** Runs one filter pass inside a {@link FilterEvents.FilterInvocation} (just runs it when JFR is off). */
+    private BufferedImage traced(FilterType type, Strategy strategy, BufferedImage in, int k, int chunkRows,
+                                 int threads, Supplier<BufferedImage> pass) {
+        if (!FilterEvents.active()) return pass.get();
+        FilterEvents.FilterInvocation e = new FilterEvents.FilterInvocation();
+        if (!e.isEnabled()) return pass.get();
+        e.begin();
+        BufferedImage out = pass.get();
+        e.end();
+        if (e.shouldCommit()) {
+            e.filter      = type.name();
+            e.strategy    = strategy.name();
+            e.kernel      = k;
+            e.width       = in.getWidth();
+            e.height      = in.getHeight();
+            e.chunkRows   = chunkRows;
+            e.parallelism = threads;
+            e.commit();
+        }
         return out;
     }
+
+    // ── Output buffers ───────────────────────────────────────────────
+    static BufferedImage newOutput(int w, int h, boolean gray) {
+        return new BufferedImage(w, h, gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /** Backing array of a TYPE_BYTE_GRAY image; writes go straight to the pixels. */
+    static byte[] bytes(BufferedImage img) {
+        return ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+    }
+
+    /** Backing array of a TYPE_INT_ARGB image. */
+    static int[] ints(BufferedImage img) {
+        return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    }
 }
@@ -3,9 +3,14 @@ package com.myteam.filter;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -30,11 +35,33 @@ public class ImageProcessor {
         public double speedup() { return seqSec / parSec; }
     }
 
+    /** Filtered images handed back in memory; {@code written} completes once the PNGs are on disk. */
+    public static class Result {
+        public final TimingResult timing;
+        public final BufferedImage seqImg, parImg;
+        public final CompletableFuture<Void> written;
+        public Result(TimingResult timing, BufferedImage seqImg, BufferedImage parImg,
+                      CompletableFuture<Void> written) {
+            this.timing  = timing;
+            this.seqImg  = seqImg;
+            this.parImg  = parImg;
+            this.written = written;
+        }
+    }
+
+    /** PNG encoding runs here so callers can show results before the files exist. */
+    private static final ExecutorService WRITER =
+      Executors.newSingleThreadExecutor(r->{
+        Thread t=new Thread(r,"png-writer"); t.setDaemon(true); return t;
+      });
+
     private final ImageFilter filter;
     private final ImageFilter.FilterType type;
     private final int kernel;
     private final OperatingSystemMXBean osBean;
     private final MemoryMXBean      memBean;
+    private ImageFilter.Strategy parStrategy = ImageFilter.Strategy.PARALLEL;
+    private boolean record;
 
     public ImageProcessor(ImageFilter filter,
                           ImageFilter.FilterType type,
@@ -47,14 +74,85 @@ public class ImageProcessor {
         this.memBean  = ManagementFactory.getMemoryMXBean();
     }
 
+    /** Strategy for the second ("parallel") run: PARALLEL or AUTO. */
+    public void setStrategy(ImageFilter.Strategy strategy) {
+        if (strategy == ImageFilter.Strategy.SEQUENTIAL)
+            throw new IllegalArgumentException("The parallel run cannot use SEQUENTIAL");
+        this.parStrategy = strategy;
+    }
+
+    /** Records each run with JFR and dumps it next to the outputs ({@code out_par.png} -> {@code out.jfr}). */
+    public void setRecording(boolean record) {
+        this.record = record;
+    }
+
     public TimingResult process(String inPath,
                                 String outSeqPath,
                                 String outParPath) throws Exception {
-        BufferedImage in = ImageIO.read(new File(inPath));
-        if (in == null) throw new IllegalArgumentException("Cannot read: " + inPath);
+        FlightRecording rec = startRecording(outSeqPath, outParPath);
+        BufferedImage in;
+        FilterEvents.PipelinePhase ph = FilterEvents.phase("decode", null, -1);
+        try {
+            in = ImageIO.read(new File(inPath));
+        } catch (IOException | RuntimeException e) {
+            if (rec != null) rec.close();
+            throw e;
+        }
+        FilterEvents.end(ph);
+        if (in == null) {
+            if (rec != null) rec.close();
+            throw new IllegalArgumentException("Cannot read: " + inPath);
+        }
+        Result r = run(in, outSeqPath, outParPath, rec);
+        try {
+            r.written.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof UncheckedIOException
+                ? ((UncheckedIOException) e.getCause()).getCause() : e;
+        }
+        return r.timing;
+    }
+
+    /**
+     * Runs both passes on an already-decoded image and returns the results in
+     * memory. The PNGs are encoded in the background once both passes are timed;
+     * a null path skips that write.
+     */
+    public Result process(BufferedImage in,
+                          String outSeqPath,
+                          String outParPath) throws Exception {
+        return run(in, outSeqPath, outParPath, startRecording(outSeqPath, outParPath));
+    }
 
-        new File(outSeqPath).getParentFile().mkdirs();
-        new File(outParPath).getParentFile().mkdirs();
+    private FlightRecording startRecording(String outSeqPath, String outParPath) {
+        if (!record || (outSeqPath == null && outParPath == null)) return null;
+        return FlightRecording.start("image " + type + " k=" + kernel);
+    }
+
+    /** The recording, if any, is dumped once both PNGs are written. */
+    private Result run(BufferedImage in, String outSeqPath, String outParPath,
+                       FlightRecording rec) throws Exception {
+        try {
+            Result r = passes(in, outSeqPath, outParPath);
+            if (rec == null) return r;
+            String jfr = FlightRecording.pathNextTo(outParPath != null ? outParPath : outSeqPath);
+            CompletableFuture<Void> written = r.written.whenComplete((v, e) -> {
+                try (rec) {
+                    rec.dump(jfr);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            return new Result(r.timing, r.seqImg, r.parImg, written);
+        } catch (Exception | Error e) {
+            if (rec != null) rec.close();
+            throw e;
+        }
+    }
+
+    private Result passes(BufferedImage in, String outSeqPath, String outParPath) {
+        if (outSeqPath != null) new File(outSeqPath).getAbsoluteFile().getParentFile().mkdirs();
+        if (outParPath != null) new File(outParPath).getAbsoluteFile().getParentFile().mkdirs();
 
         // warm-up
         filter.sequentialGaussian(in,kernel);
@@ -63,25 +161,37 @@ public class ImageProcessor {
         filter.parallelGrayscale  (in);
         filter.sequentialEdge     (in);
         filter.parallelEdge       (in);
+        filter.sequentialMedian   (in,kernel);
+        filter.parallelMedian     (in,kernel);
+        if (parStrategy == ImageFilter.Strategy.AUTO) {
+            filter.autoGaussian (in,kernel);   // also loads/calibrates the tuning profile
+            filter.autoGrayscale(in);
+            filter.autoEdge     (in);
+            filter.autoMedian   (in,kernel);
+        }
 
         // ── SEQUENTIAL ─────────────────────────────────────────────
         CpuSampler cpuSeq = new CpuSampler(); cpuSeq.start();
         MemSampler memSeq = new MemSampler(); memSeq.start();
         long t0 = System.nanoTime();
 
+        FilterEvents.PipelinePhase ph = FilterEvents.phase("filter", "sequential", -1);
         BufferedImage seqImg;
-        switch(type){
-          case GAUSSIAN:  seqImg = filter.sequentialGaussian(in,kernel); break;
-          case GRAYSCALE: seqImg = filter.sequentialGrayscale(in);      break;
-          case EDGE:      seqImg = filter.sequentialEdge(in);           break;
-          default: throw new AssertionError();
+        long t1;
+        try {
+            switch(type){
+              case GAUSSIAN:  seqImg = filter.sequentialGaussian(in,kernel); break;
+              case GRAYSCALE: seqImg = filter.sequentialGrayscale(in);      break;
+              case EDGE:      seqImg = filter.sequentialEdge(in);           break;
+              case MEDIAN:    seqImg = filter.sequentialMedian(in,kernel);  break;
+              default: throw new AssertionError();
+            }
+            FilterEvents.end(ph);
+            t1 = System.nanoTime();
+        } finally {
+            cpuSeq.stop();
+            memSeq.stop();
         }
-
-        long t1 = System.nanoTime();
-        cpuSeq.stop();
-        memSeq.stop();
-        ImageIO.write(seqImg,"png",new File(outSeqPath));
-
         double seqSec       = (t1-t0)/1e9;
         double seqCpuMaxPct = cpuSeq.getMaxLoad()*100.0;
         MemoryUsage h0 = memBean.getHeapMemoryUsage(),
@@ -93,30 +203,67 @@ public class ImageProcessor {
         MemSampler memPar = new MemSampler(); memPar.start();
         t0 = System.nanoTime();
 
+        boolean auto = parStrategy == ImageFilter.Strategy.AUTO;
+        ph = FilterEvents.phase("filter", "parallel", -1);
         BufferedImage parImg;
-        switch(type){
-          case GAUSSIAN:  parImg = filter.parallelGaussian(in,kernel); break;
-          case GRAYSCALE: parImg = filter.parallelGrayscale(in);      break;
-          case EDGE:      parImg = filter.parallelEdge(in);           break;
-          default: throw new AssertionError();
+        try {
+            switch(type){
+              case GAUSSIAN:  parImg = auto ? filter.autoGaussian(in,kernel) : filter.parallelGaussian(in,kernel); break;
+              case GRAYSCALE: parImg = auto ? filter.autoGrayscale(in)       : filter.parallelGrayscale(in);      break;
+              case EDGE:      parImg = auto ? filter.autoEdge(in)            : filter.parallelEdge(in);           break;
+              case MEDIAN:    parImg = auto ? filter.autoMedian(in,kernel)   : filter.parallelMedian(in,kernel);  break;
+              default: throw new AssertionError();
+            }
+            FilterEvents.end(ph);
+            t1 = System.nanoTime();
+        } finally {
+            cpuPar.stop();
+            memPar.stop();
         }
-
-        t1 = System.nanoTime();
-        cpuPar.stop();
-        memPar.stop();
-        ImageIO.write(parImg,"png",new File(outParPath));
-
         double parSec       = (t1-t0)/1e9;
         double parCpuMaxPct = cpuPar.getMaxLoad()*100.0;
         MemoryUsage h1 = memBean.getHeapMemoryUsage(),
                     nh1= memBean.getNonHeapMemoryUsage();
         double parRamMB   = (h1.getUsed()+nh1.getUsed())/1024.0/1024.0;
 
-        return new TimingResult(
+        // encode only once both passes are measured, so the writer never competes with the timed passes
+        CompletableFuture<Void> seqWrite = writeAsync(seqImg, outSeqPath, "sequential");
+        CompletableFuture<Void> parWrite = writeAsync(parImg, outParPath, "parallel");
+
+        TimingResult t = new TimingResult(
           seqSec, parSec,
           seqCpuMaxPct, parCpuMaxPct,
           seqRamMB, parRamMB
         );
+        return new Result(t, seqImg, parImg, CompletableFuture.allOf(seqWrite, parWrite));
+    }
+
+    private static CompletableFuture<Void> writeAsync(BufferedImage img, String path, String pass) {
+        if (path == null) return CompletableFuture.completedFuture(null);
+        return CompletableFuture.runAsync(() -> {
+            FilterEvents.PipelinePhase ph = FilterEvents.phase("encode", pass, -1);
+            try {
+                ImageIO.write(img, "png", new File(path));
+                FilterEvents.end(ph);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, WRITER);
+    }
+
+    /**
+     * Scale-space job: decodes {@code inPath} once, blurs it at every size in
+     * {@code kernels} plus {@code octaves} half-resolution levels, and writes them
+     * all as {@code outBase_k<k>.png} / {@code outBase_oct<j>.png}.
+     */
+    public GaussianPyramid.Result processPyramid(String inPath, String outBase,
+                                                 int[] kernels, int octaves) throws Exception {
+        BufferedImage in = ImageIO.read(new File(inPath));
+        if (in == null) throw new IllegalArgumentException("Cannot read: " + inPath);
+        GaussianPyramid pyr = new GaussianPyramid(filter.context());
+        GaussianPyramid.Result res = pyr.build(in, kernels, octaves);
+        pyr.writeAll(res, outBase);
+        return res;
     }
 
     /** True‐peak CPU sampler via getProcessCpuLoad() every 50 ms. */
@@ -0,0 +1,134 @@
+// File: src/com/myteam/filter/MedianFilter.java
+package com.myteam.filter;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Per-channel k x k median with constant cost per pixel (Perreault &amp; Hébert's
+ * column-histogram algorithm). Every column keeps a 256-bin histogram of its
+ * k rows; sliding down a row moves one pixel in and one out of each column.
+ * The kernel histogram is two-level (16 coarse + 256 fine bins): the coarse
+ * bins are updated every step, the fine bins of a coarse bucket only when the
+ * median search actually lands in it. Borders clamp to the edge like the other
+ * filters. The parallel variant splits the image into horizontal stripes that
+ * each build their own column histograms.
+ */
+public class MedianFilter {
+    private final ExecutionContext ctx;
+
+    public MedianFilter() {
+        this(ExecutionContext.common());
+    }
+
+    public MedianFilter(ExecutionContext ctx) {
+        this.ctx = ctx;
+    }
+
+    public BufferedImage sequential(BufferedImage in, int k) {
+        int w = in.getWidth(), h = in.getHeight();
+        int[] src = in.getRGB(0, 0, w, h, null, 0, w);
+        BufferedImage out = ImageFilter.newOutput(w, h, false);
+        stripe(src, ImageFilter.ints(out), w, h, k / 2, 0, h);
+        return out;
+    }
+
+    public BufferedImage parallel(BufferedImage in, int k) {
+        return parallel(in, k, 1);
+    }
+
+    /** Stripes are at least {@code chunkRows} tall and tall enough to amortise their histogram setup. */
+    public BufferedImage parallel(BufferedImage in, int k, int chunkRows) {
+        int w = in.getWidth(), h = in.getHeight(), r = k / 2;
+        int[] src = in.getRGB(0, 0, w, h, null, 0, w);
+        BufferedImage out = ImageFilter.newOutput(w, h, false);
+        int[] dst = ImageFilter.ints(out);
+        int perWorker = (h + 2 * ctx.parallelism() - 1) / (2 * ctx.parallelism());
+        int rows = Math.max(chunkRows, Math.max(4 * k, perWorker));
+        int stripes = (h + rows - 1) / rows;
+        ctx.parallelRows(stripes, 1, s -> stripe(src, dst, w, h, r, s * rows, Math.min(h, (s + 1) * rows)));
+        return out;
+    }
+
+    /** Filters output rows [y0, y1) of all three channels. */
+    private void stripe(int[] src, int[] dst, int w, int h, int r, int y0, int y1) {
+        int k = 2 * r + 1, rank = k * k / 2;
+        int[][] colFine   = new int[3][w * 256];
+        int[][] colCoarse = new int[3][w * 16];
+        int[] fine = new int[256], coarse = new int[16], lastX = new int[16];
+        int[] med = new int[3];
+
+        // column histograms for the first output row
+        for (int dy = -r; dy <= r; dy++) {
+            int row = clamp(y0 + dy, h) * w;
+            for (int x = 0; x < w; x++) addPixel(colFine, colCoarse, x, src[row + x], 1);
+        }
+
+        for (int y = y0; y < y1; y++) {
+            ctx.checkpoint();
+            if (y > y0) {
+                int outRow = clamp(y - 1 - r, h) * w, inRow = clamp(y + r, h) * w;
+                for (int x = 0; x < w; x++) {
+                    addPixel(colFine, colCoarse, x, src[outRow + x], -1);
+                    addPixel(colFine, colCoarse, x, src[inRow + x], 1);
+                }
+            }
+            for (int c = 0; c < 3; c++) {
+                int[] cf = colFine[c], cc = colCoarse[c];
+                Arrays.fill(coarse, 0);
+                Arrays.fill(lastX, Integer.MIN_VALUE / 2);
+                for (int d = -r; d <= r; d++) {
+                    int base = clamp(d, w) * 16;
+                    for (int b = 0; b < 16; b++) coarse[b] += cc[base + b];
+                }
+                int shift = 16 - 8 * c;   // R, G, B
+                for (int x = 0; x < w; x++) {
+                    if (x > 0) {
+                        int in = clamp(x + r, w) * 16, out = clamp(x - 1 - r, w) * 16;
+                        for (int b = 0; b < 16; b++) coarse[b] += cc[in + b] - cc[out + b];
+                    }
+                    int v = median(cf, coarse, fine, lastX, x, w, r, rank);
+                    int o = y * w + x;
+                    dst[o] = c == 0 ? (0xFF << 24) | (v << shift) : dst[o] | (v << shift);
+                }
+            }
+        }
+    }
+
+    private static void addPixel(int[][] colFine, int[][] colCoarse, int x, int rgb, int delta) {
+        for (int c = 0; c < 3; c++) {
+            int v = (rgb >> (16 - 8 * c)) & 0xFF;
+            colFine[c][x * 256 + v]        += delta;
+            colCoarse[c][x * 16 + (v >> 4)] += delta;
+        }
+    }
+
+    /** Value of the given rank in the window at column x; brings the chosen fine bucket up to date first. */
+    private static int median(int[] cf, int[] coarse, int[] fine, int[] lastX, int x, int w, int r, int rank) {
+        int b = 0, acc = 0;
+        while (acc + coarse[b] <= rank) acc += coarse[b++];
+
+        int lo = b * 16;
+        if (x - lastX[b] > 2 * r) {
+            Arrays.fill(fine, lo, lo + 16, 0);
+            for (int d = -r; d <= r; d++) {
+                int base = clamp(x + d, w) * 256 + lo;
+                for (int i = 0; i < 16; i++) fine[lo + i] += cf[base + i];
+            }
+        } else {
+            for (int xx = lastX[b] + 1; xx <= x; xx++) {
+                int in = clamp(xx + r, w) * 256 + lo, out = clamp(xx - 1 - r, w) * 256 + lo;
+                for (int i = 0; i < 16; i++) fine[lo + i] += cf[in + i] - cf[out + i];
+            }
+        }
+        lastX[b] = x;
+
+        int v = lo;
+        while (acc + fine[v] <= rank) acc += fine[v++];
+        return v;
+    }
+
+    private static int clamp(int i, int n) {
+        return i < 0 ? 0 : i >= n ? n - 1 : i;
+    }
+}
@@ -0,0 +1,103 @@
+// File: src/com/myteam/filter/Roi.java
+package com.myteam.filter;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Region of interest for {@link RoiFilter}: either a list of rectangles or a
+ * binary mask (any non-black pixel is inside). A mask is reduced to the
+ * bounding rectangles of its occupied {@value #CELL}x{@value #CELL} cells so
+ * only those areas (plus halo) get filtered; the per-pixel test then decides
+ * which results are kept.
+ */
+public class Roi {
+    static final int CELL = 32;
+
+    private final List<Rectangle> rects;
+    private final byte[] mask;          // null for rectangle ROIs
+    private final int maskW, maskH;
+
+    private Roi(List<Rectangle> rects, byte[] mask, int maskW, int maskH) {
+        this.rects = rects;
+        this.mask  = mask;
+        this.maskW = maskW;
+        this.maskH = maskH;
+    }
+
+    public static Roi of(Rectangle... rects) {
+        return of(Arrays.asList(rects));
+    }
+
+    public static Roi of(List<Rectangle> rects) {
+        List<Rectangle> copy = new ArrayList<>();
+        for (Rectangle r : rects) if (!r.isEmpty()) copy.add(new Rectangle(r));
+        return new Roi(Collections.unmodifiableList(copy), null, 0, 0);
+    }
+
+    /** Mask ROI; must have the same size as the images it is applied to. */
+    public static Roi fromMask(BufferedImage maskImg) {
+        int w = maskImg.getWidth(), h = maskImg.getHeight();
+        int[] rgb = maskImg.getRGB(0, 0, w, h, null, 0, w);
+        byte[] bits = new byte[w * h];
+        for (int i = 0; i < bits.length; i++) bits[i] = (byte) ((rgb[i] & 0xFFFFFF) != 0 ? 1 : 0);
+
+        // bounding boxes of horizontal runs of occupied cells, one band of cells at a time
+        List<Rectangle> rects = new ArrayList<>();
+        for (int cy = 0; cy < h; cy += CELL) {
+            int ch = Math.min(CELL, h - cy), runStart = -1;
+            for (int cx = 0; cx <= w; cx += CELL) {
+                boolean hit = cx < w && occupied(bits, w, cx, cy, Math.min(CELL, w - cx), ch);
+                if (hit && runStart < 0) runStart = cx;
+                if (!hit && runStart >= 0) {
+                    rects.add(new Rectangle(runStart, cy, Math.min(cx, w) - runStart, ch));
+                    runStart = -1;
+                }
+            }
+        }
+        return new Roi(Collections.unmodifiableList(rects), bits, w, h);
+    }
+
+    private static boolean occupied(byte[] bits, int w, int x0, int y0, int cw, int ch) {
+        for (int y = y0; y < y0 + ch; y++)
+            for (int i = y * w + x0, end = i + cw; i < end; i++)
+                if (bits[i] != 0) return true;
+        return false;
+    }
+
+    /** Rectangles clipped to a w x h image. */
+    public List<Rectangle> regions(int w, int h) {
+        checkSize(w, h);
+        Rectangle bounds = new Rectangle(0, 0, w, h);
+        List<Rectangle> out = new ArrayList<>();
+        for (Rectangle r : rects) {
+            Rectangle c = r.intersection(bounds);
+            if (!c.isEmpty()) out.add(c);
+        }
+        return out;
+    }
+
+    public boolean hasMask() { return mask != null; }
+
+    /** Mask test; always true for rectangle ROIs (callers only ask inside a region). */
+    public boolean contains(int x, int y) {
+        return mask == null || mask[y * maskW + x] != 0;
+    }
+
+    /** Pixels that will actually be filtered in a w x h image (regions only, without halo). */
+    public long area(int w, int h) {
+        long a = 0;
+        for (Rectangle r : regions(w, h)) a += (long) r.width * r.height;
+        return a;
+    }
+
+    private void checkSize(int w, int h) {
+        if (mask != null && (w != maskW || h != maskH))
+            throw new IllegalArgumentException(
+                "Mask is " + maskW + "x" + maskH + " but image is " + w + "x" + h);
+    }
+}
@@ -7,6 +7,7 @@ import java.io.File;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
+import java.time.Duration;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -39,6 +40,11 @@ public class VideoProcessor {
     private final int kernel;
     private final OperatingSystemMXBean osBean;
     private final MemoryMXBean      memBean;
+    private ImageFilter.Strategy parStrategy = ImageFilter.Strategy.PARALLEL;
+    private Roi roi;
+    private boolean record;
+    private Duration deadline;
+    private Duration frameBudget;
 
     public VideoProcessor(ImageFilter filter,
                           ImageFilter.FilterType type,
@@ -51,9 +57,53 @@ public class VideoProcessor {
         this.memBean= ManagementFactory.getMemoryMXBean();
     }
 
+    /** Strategy for the second ("parallel") run: PARALLEL or AUTO. */
+    public void setStrategy(ImageFilter.Strategy strategy) {
+        if (strategy == ImageFilter.Strategy.SEQUENTIAL)
+            throw new IllegalArgumentException("The parallel run cannot use SEQUENTIAL");
+        this.parStrategy = strategy;
+    }
+
+    /** Restricts filtering to {@code roi}; frames are filtered in place, the rest passes through. Null = full frame. */
+    public void setRoi(Roi roi) {
+        this.roi = roi;
+    }
+
+    /** Records each run with JFR and dumps it next to the outputs ({@code clip_par.mp4} -> {@code clip.jfr}). */
+    public void setRecording(boolean record) {
+        this.record = record;
+    }
+
+    /**
+     * Stops the job with a {@link java.util.concurrent.CancellationException}
+     * ("Deadline exceeded") once both runs together take longer than
+     * {@code deadline}. Null = no deadline.
+     */
+    public void setDeadline(Duration deadline) {
+        this.deadline = deadline;
+    }
+
+    /** Stops the job as soon as filtering a single frame takes longer than {@code budget}. Null = no budget. */
+    public void setFrameBudget(Duration budget) {
+        this.frameBudget = budget;
+    }
+
     public TimingResult process(String inPath,
                                 String outSeqPath,
                                 String outParPath) throws Exception {
+        if (!record) return run(inPath, outSeqPath, outParPath);
+        try (FlightRecording rec = FlightRecording.start("video " + type + " k=" + kernel)) {
+            TimingResult t = run(inPath, outSeqPath, outParPath);
+            rec.dump(FlightRecording.pathNextTo(outParPath));
+            return t;
+        }
+    }
+
+    private TimingResult run(String inPath,
+                             String outSeqPath,
+                             String outParPath) throws Exception {
+        VideoSupport.ensureLoaded();   // first video job pays the native load here, outside the timings
+
         // 1) Grab metadata
         Java2DFrameConverter conv = new Java2DFrameConverter();
         FFmpegFrameGrabber p = new FFmpegFrameGrabber(inPath);
@@ -62,6 +112,10 @@ public class VideoProcessor {
         double fps = p.getVideoFrameRate();
         p.stop();
 
+        // the job token carries the deadline; each frame gets a child carrying the frame budget
+        CancellationToken job = deadline != null ? filter.context().token().child(deadline) : filter.context().token();
+        ImageFilter jobFilter = deadline != null ? filter.withToken(job) : filter;
+
         // Ensure dirs
         new File(outSeqPath).getParentFile().mkdirs();
         new File(outParPath).getParentFile().mkdirs();
@@ -79,22 +133,35 @@ public class VideoProcessor {
             rec.setFrameRate(fps);
             rec.start();
             Frame f;
+            long n = 0;
+            FilterEvents.PipelinePhase ph = FilterEvents.phase("decode", "sequential", n);
             while ((f=grab.grabImage()) != null) {
+                job.checkpoint();   // Stop/deadline: the resources below close on the way out
                 BufferedImage bi = conv.convert(f);
+                FilterEvents.end(ph);
+                ph = FilterEvents.phase("filter", "sequential", n);
+                ImageFilter ff = frameFilter(jobFilter, job);
                 BufferedImage out;
-                switch(type){
-                  case GAUSSIAN:  out=filter.sequentialGaussian(bi,kernel); break;
-                  case GRAYSCALE: out=filter.sequentialGrayscale(bi);      break;
-                  case EDGE:      out=filter.sequentialEdge(bi);           break;
+                if (roi != null) out = new RoiFilter(ff).apply(bi, roi, type, kernel, ImageFilter.Strategy.SEQUENTIAL, true);
+                else switch(type){
+                  case GAUSSIAN:  out=ff.sequentialGaussian(bi,kernel); break;
+                  case GRAYSCALE: out=ff.sequentialGrayscale(bi);      break;
+                  case EDGE:      out=ff.sequentialEdge(bi);           break;
+                  case MEDIAN:    out=ff.sequentialMedian(bi,kernel);  break;
                   default: throw new AssertionError();
                 }
-                rec.record(conv.convert(toBGR(out,w,h)));
+                FilterEvents.end(ph);
+                ph = FilterEvents.phase("encode", "sequential", n);
+                rec.record(conv.convert(forRecorder(out,w,h)));
+                FilterEvents.end(ph);
+                ph = FilterEvents.phase("decode", "sequential", ++n);
             }
             rec.stop(); grab.stop();
+        } finally {
+            cpuSeq.stop(); memSeq.stop();
         }
 
         long t1 = System.nanoTime();
-        cpuSeq.stop(); memSeq.stop();
         double seqSec       = (t1-t0)/1e9;
         double seqCpuMaxPct = cpuSeq.getMaxLoad()*100.0;
         MemoryUsage sh = memBean.getHeapMemoryUsage(),
@@ -102,6 +169,9 @@ public class VideoProcessor {
         double seqRamMB   = (sh.getUsed()+snh.getUsed())/1024.0/1024.0;
 
         // ── PARALLEL ────────────────────────────────────────────────
+        job.checkpoint();
+        boolean auto = parStrategy == ImageFilter.Strategy.AUTO;
+        if (auto) jobFilter.tuner();   // calibrate outside the timed run; frame filters inherit it
         CpuSampler cpuPar = new CpuSampler(); cpuPar.start();
         MemSampler memPar = new MemSampler(); memPar.start();
         t0 = System.nanoTime();
@@ -114,22 +184,35 @@ public class VideoProcessor {
             rec.setFrameRate(fps);
             rec.start();
             Frame f;
+            long n = 0;
+            FilterEvents.PipelinePhase ph = FilterEvents.phase("decode", "parallel", n);
             while ((f=grab.grabImage()) != null) {
+                job.checkpoint();   // Stop/deadline: the resources below close on the way out
                 BufferedImage bi = conv.convert(f);
+                FilterEvents.end(ph);
+                ph = FilterEvents.phase("filter", "parallel", n);
+                ImageFilter ff = frameFilter(jobFilter, job);
                 BufferedImage out;
-                switch(type){
-                  case GAUSSIAN:  out=filter.parallelGaussian(bi,kernel); break;
-                  case GRAYSCALE: out=filter.parallelGrayscale(bi);      break;
-                  case EDGE:      out=filter.parallelEdge(bi);           break;
+                if (roi != null) out = new RoiFilter(ff).apply(bi, roi, type, kernel, parStrategy, true);
+                else switch(type){
+                  case GAUSSIAN:  out=auto ? ff.autoGaussian(bi,kernel) : ff.parallelGaussian(bi,kernel); break;
+                  case GRAYSCALE: out=auto ? ff.autoGrayscale(bi)       : ff.parallelGrayscale(bi);      break;
+                  case EDGE:      out=auto ? ff.autoEdge(bi)            : ff.parallelEdge(bi);           break;
+                  case MEDIAN:    out=auto ? ff.autoMedian(bi,kernel)   : ff.parallelMedian(bi,kernel);  break;
                   default: throw new AssertionError();
                 }
-                rec.record(conv.convert(toBGR(out,w,h)));
+                FilterEvents.end(ph);
+                ph = FilterEvents.phase("encode", "parallel", n);
+                rec.record(conv.convert(forRecorder(out,w,h)));
+                FilterEvents.end(ph);
+                ph = FilterEvents.phase("decode", "parallel", ++n);
             }
             rec.stop(); grab.stop();
+        } finally {
+            cpuPar.stop(); memPar.stop();
         }
 
         long t2 = System.nanoTime();
-        cpuPar.stop(); memPar.stop();
         double parSec       = (t2-t0)/1e9;
         double parCpuMaxPct = cpuPar.getMaxLoad()*100.0;
         MemoryUsage ph = memBean.getHeapMemoryUsage(),
@@ -143,6 +226,17 @@ public class VideoProcessor {
         );
     }
 
+    /** {@code jobFilter} itself, or a view bound to a fresh per-frame child of {@code job} when a frame budget is set. */
+    private ImageFilter frameFilter(ImageFilter jobFilter, CancellationToken job) {
+        return frameBudget != null ? jobFilter.withToken(job.child(frameBudget)) : jobFilter;
+    }
+
+    /** Gray results go to the recorder as 1-channel GRAY8 frames, BGR frames (in-place ROI) as is, the rest redrawn as BGR. */
+    private BufferedImage forRecorder(BufferedImage s,int w,int h){
+        int t = s.getType();
+        return t==BufferedImage.TYPE_BYTE_GRAY || t==BufferedImage.TYPE_3BYTE_BGR ? s : toBGR(s,w,h);
+    }
+
     private BufferedImage toBGR(BufferedImage s,int w,int h){
         BufferedImage b=new BufferedImage(w,h,BufferedImage.TYPE_3BYTE_BGR);
         Graphics2D g=b.createGraphics();
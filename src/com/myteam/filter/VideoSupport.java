@@ -0,0 +1,52 @@
+// File: src/com/myteam/filter/VideoSupport.java
+package com.myteam.filter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+
+/**
+ * Loads the JavaCV/FFmpeg natives on first use of video mode instead of at
+ * startup. Image-only runs never touch this class (or any other JavaCV
+ * class), so they skip the native extraction and linking entirely.
+ * {@link #preload()} starts loading in the background, e.g. as soon as the
+ * user picks "Video"; {@link #ensureLoaded()} waits for it.
+ */
+public final class VideoSupport {
+    private static CompletableFuture<Void> loading;
+
+    private VideoSupport() {}
+
+    /** Starts loading the natives on a daemon thread; later calls return the same future. */
+    public static synchronized CompletableFuture<Void> preload() {
+        if (loading == null) {
+            loading = new CompletableFuture<>();
+            Thread t = new Thread(() -> {
+                try {
+                    FFmpegFrameGrabber.tryLoad();
+                    FFmpegFrameRecorder.tryLoad();
+                    loading.complete(null);
+                } catch (Throwable e) {
+                    loading.completeExceptionally(e);
+                }
+            }, "ffmpeg-loader");
+            t.setDaemon(true);
+            t.start();
+        }
+        return loading;
+    }
+
+    /** Blocks until the natives are loaded; rethrows the loader's failure. */
+    public static void ensureLoaded() throws Exception {
+        try {
+            preload().join();
+        } catch (CompletionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof Exception) throw (Exception) c;
+            if (c instanceof Error) throw (Error) c;
+            throw e;
+        }
+    }
+}